@@ -10,11 +10,13 @@
 package org.flybase.robot;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAnnotation;
 import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLAnnotationProperty;
@@ -24,13 +26,31 @@ import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyChange;
 import org.semanticweb.owlapi.model.RemoveAxiom;
 import org.semanticweb.owlapi.model.parameters.Imports;
-import org.semanticweb.owlapi.model.parameters.Navigation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Helper class to rewrite class annotations.
  */
 public class BatchAnnotationRewriter {
 
+    private static final Logger logger = LoggerFactory.getLogger(BatchAnnotationRewriter.class);
+
+    /**
+     * What to do when a newly produced annotation has the same value as the
+     * annotation of another class.
+     */
+    public enum DuplicatePolicy {
+        /** Do not check for duplicates. */
+        IGNORE,
+        /** Log a warning and keep the new annotation. */
+        WARN,
+        /** Log a warning and keep the original annotation. */
+        SKIP,
+        /** Log an error and keep the new annotation; see {@link #getDuplicates()}. */
+        ERROR
+    }
+
     private HashSet<OWLAxiom> oldAxioms = new HashSet<OWLAxiom>();
     private HashSet<OWLAxiom> newAxioms = new HashSet<OWLAxiom>();
     private ArrayList<IAnnotationRewriter> rewriters = new ArrayList<IAnnotationRewriter>();
@@ -38,6 +58,10 @@ public class BatchAnnotationRewriter {
     private String iriFilter = null;
     private boolean generate = false;
     private boolean processObsoletes = false;
+    private IRewriteListener listener = null;
+    private DuplicatePolicy duplicatePolicy = DuplicatePolicy.IGNORE;
+    private HashMap<String, IRI> valueIndex = new HashMap<String, IRI>();
+    private ArrayList<IRI> duplicates = new ArrayList<IRI>();
 
     /**
      * Adds a rewriter to apply on annotation axioms. All rewriters added here will
@@ -90,6 +114,41 @@ public class BatchAnnotationRewriter {
         forceAnnotations.add(annotation);
     }
 
+    /**
+     * Sets a listener to be notified of each new axiom as soon as it is produced.
+     * 
+     * @param listener The listener to notify ({@code null} to disable).
+     */
+    public void setListener(IRewriteListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the policy to apply when a new annotation value is identical to the
+     * value of the same annotation on another class. Duplicates are detected
+     * against both the annotations already present in the ontology and the
+     * annotations produced during the rewrite. Annotations of obsolete classes are
+     * not considered. Unless the policy is {@link DuplicatePolicy#IGNORE}, the
+     * annotations of all classes are looked up once more before rewriting, to
+     * build the index of existing values.
+     * 
+     * @param policy The policy to apply. Default is {@link DuplicatePolicy#IGNORE}.
+     */
+    public void setDuplicatePolicy(DuplicatePolicy policy) {
+        duplicatePolicy = policy;
+    }
+
+    /**
+     * Gets the classes for which a duplicate annotation value was produced during
+     * the last rewrite. This is always empty if the duplicate policy is
+     * {@link DuplicatePolicy#IGNORE}.
+     * 
+     * @return The IRIs of the classes with a duplicate value.
+     */
+    public List<IRI> getDuplicates() {
+        return duplicates;
+    }
+
     /**
      * Rewrite class annotation axioms with the specified property.
      * 
@@ -98,42 +157,76 @@ public class BatchAnnotationRewriter {
      * @return The list of changes to apply to the ontology.
      */
     public List<OWLOntologyChange> rewrite(OWLOntology ontology, OWLAnnotationProperty property) {
+        return rewrite(new ImportsClosureResolver(ontology), property);
+    }
+
+    /**
+     * Rewrite class annotation axioms with the specified property, using an
+     * existing resolver to look up the annotations of each class.
+     * 
+     * @param resolver The resolver for the ontology whose axioms should be
+     *                 rewritten.
+     * @param property The annotation property to select.
+     * @return The list of changes to apply to the ontology.
+     */
+    public List<OWLOntologyChange> rewrite(ImportsClosureResolver resolver, OWLAnnotationProperty property) {
+        OWLOntology ontology = resolver.getOntology();
         oldAxioms.clear();
         newAxioms.clear();
+        valueIndex.clear();
+        duplicates.clear();
 
-        for ( OWLClass c : ontology.getClassesInSignature(Imports.INCLUDED) ) {
+        Set<OWLClass> classes = ontology.getClassesInSignature(Imports.INCLUDED);
+        if ( duplicatePolicy != DuplicatePolicy.IGNORE ) {
+            indexExistingValues(resolver, property, classes);
+        }
+
+        for ( OWLClass c : classes ) {
             if ( iriFilter == null || c.getIRI().toString().startsWith(iriFilter) ) {
-                rewrite(ontology, property, c);
+                rewrite(resolver, property, c);
             }
         }
 
         ArrayList<OWLOntologyChange> changes = new ArrayList<OWLOntologyChange>();
         oldAxioms.forEach(oldAxiom -> changes.add(new RemoveAxiom(ontology, oldAxiom)));
-        for ( OWLAxiom axiom : newAxioms ) {
-            if ( !forceAnnotations.isEmpty() ) {
-                if ( axiom.getAnnotations().isEmpty() ) {
-                    axiom = axiom.getAnnotatedAxiom(forceAnnotations);
-                } else {
-                    HashSet<OWLAnnotation> annots = new HashSet<OWLAnnotation>();
-                    annots.addAll(axiom.getAnnotations());
-                    annots.addAll(forceAnnotations);
-                    axiom = axiom.getAnnotatedAxiom(annots);
+        newAxioms.forEach(newAxiom -> changes.add(new AddAxiom(ontology, newAxiom)));
+        return changes;
+    }
+
+    /*
+     * Build the index of existing annotation values, ignoring obsolete classes.
+     */
+    private void indexExistingValues(ImportsClosureResolver resolver, OWLAnnotationProperty property,
+            Set<OWLClass> classes) {
+        ArrayList<String> values = new ArrayList<String>();
+        for ( OWLClass c : classes ) {
+            boolean isObsolete = false;
+            values.clear();
+            for ( OWLAnnotationAssertionAxiom axiom : resolver.getAnnotationAssertionAxioms(c.getIRI()) ) {
+                if ( axiom.getProperty().isDeprecated() ) {
+                    isObsolete = true;
+                    break;
+                } else if ( axiom.getProperty().equals(property) && axiom.getValue().isLiteral() ) {
+                    values.add(axiom.getValue().asLiteral().get().getLiteral());
+                }
+            }
+
+            if ( !isObsolete ) {
+                for ( String value : values ) {
+                    valueIndex.putIfAbsent(value, c.getIRI());
                 }
             }
-            changes.add(new AddAxiom(ontology, axiom));
         }
-        return changes;
     }
 
     /*
      * Rewrite annotations for a single class.
      */
-    private void rewrite(OWLOntology ontology, OWLAnnotationProperty property, OWLClass c) {
+    private void rewrite(ImportsClosureResolver resolver, OWLAnnotationProperty property, OWLClass c) {
         HashSet<OWLAnnotationAssertionAxiom> origAxioms = new HashSet<OWLAnnotationAssertionAxiom>();
         boolean isObsolete = false;
 
-        for ( OWLAnnotationAssertionAxiom axiom : ontology.getAxioms(OWLAnnotationAssertionAxiom.class, c.getIRI(),
-                Imports.INCLUDED, Navigation.IN_SUB_POSITION) ) {
+        for ( OWLAnnotationAssertionAxiom axiom : resolver.getAnnotationAssertionAxioms(c.getIRI()) ) {
             if ( axiom.getProperty().isDeprecated() ) {
                 isObsolete = true;
             } else if ( axiom.getProperty().equals(property) ) {
@@ -149,8 +242,9 @@ public class BatchAnnotationRewriter {
             for ( IAnnotationRewriter rewriter : rewriters ) {
                 OWLAnnotationAssertionAxiom newAxiom = rewriter.rewrite(c, origAxiom);
                 if ( newAxiom != null && newAxiom != origAxiom ) {
-                    newAxioms.add(newAxiom);
-                    oldAxioms.add(origAxiom);
+                    if ( addNewAxiom(c, origAxiom, newAxiom, rewriter, isObsolete) ) {
+                        oldAxioms.add(origAxiom);
+                    }
                     break;
                 }
             }
@@ -160,10 +254,71 @@ public class BatchAnnotationRewriter {
             for ( IAnnotationRewriter generator : rewriters ) {
                 OWLAnnotationAssertionAxiom newAxiom = generator.rewrite(c);
                 if ( newAxiom != null ) {
-                    newAxioms.add(newAxiom);
+                    addNewAxiom(c, null, newAxiom, generator, isObsolete);
                     break;
                 }
             }
         }
     }
+
+    /*
+     * Add the forced annotations to a newly produced axiom and record it. Returns
+     * false if the axiom has been discarded as a duplicate. Axioms on obsolete
+     * classes are never checked for duplicates nor added to the index.
+     */
+    private boolean addNewAxiom(OWLClass c, OWLAnnotationAssertionAxiom origAxiom, OWLAnnotationAssertionAxiom newAxiom,
+            IAnnotationRewriter rewriter, boolean isObsolete) {
+        if ( !forceAnnotations.isEmpty() ) {
+            if ( newAxiom.getAnnotations().isEmpty() ) {
+                newAxiom = newAxiom.getAnnotatedAxiom(forceAnnotations);
+            } else {
+                HashSet<OWLAnnotation> annots = new HashSet<OWLAnnotation>();
+                annots.addAll(newAxiom.getAnnotations());
+                annots.addAll(forceAnnotations);
+                newAxiom = newAxiom.getAnnotatedAxiom(annots);
+            }
+        }
+
+        if ( duplicatePolicy != DuplicatePolicy.IGNORE && !isObsolete && isDuplicate(c, origAxiom, newAxiom) ) {
+            duplicates.add(c.getIRI());
+            if ( duplicatePolicy == DuplicatePolicy.SKIP ) {
+                return false;
+            }
+        }
+
+        if ( newAxioms.add(newAxiom) && listener != null ) {
+            listener.axiomRewritten(c, origAxiom, newAxiom, rewriter);
+        }
+        return true;
+    }
+
+    /*
+     * Check whether the value of a new axiom is already used by another class, and
+     * update the index of values accordingly.
+     */
+    private boolean isDuplicate(OWLClass c, OWLAnnotationAssertionAxiom origAxiom,
+            OWLAnnotationAssertionAxiom newAxiom) {
+        if ( !newAxiom.getValue().isLiteral() ) {
+            return false;
+        }
+
+        String value = newAxiom.getValue().asLiteral().get().getLiteral();
+        IRI owner = valueIndex.putIfAbsent(value, c.getIRI());
+        if ( owner != null && !owner.equals(c.getIRI()) ) {
+            String msg = String.format("Duplicate value for %s (already used by %s): %s",
+                    c.getIRI().toQuotedString(), owner.toQuotedString(), value);
+            if ( duplicatePolicy == DuplicatePolicy.ERROR ) {
+                logger.error(msg);
+            } else {
+                logger.warn(msg);
+            }
+            return true;
+        }
+
+        // The original value is going away, so it is no longer owned by this class
+        if ( origAxiom != null && origAxiom.getValue().isLiteral() ) {
+            valueIndex.remove(origAxiom.getValue().asLiteral().get().getLiteral(), c.getIRI());
+        }
+        return false;
+    }
 }
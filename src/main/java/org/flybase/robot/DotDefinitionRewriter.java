@@ -9,7 +9,6 @@
 
 package org.flybase.robot;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -21,18 +20,18 @@ import org.semanticweb.owlapi.model.ClassExpressionType;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAnnotation;
 import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
-import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLClassExpression;
 import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
 import org.semanticweb.owlapi.model.OWLNamedObject;
+import org.semanticweb.owlapi.model.OWLNaryBooleanClassExpression;
+import org.semanticweb.owlapi.model.OWLObjectComplementOf;
 import org.semanticweb.owlapi.model.OWLObjectIntersectionOf;
 import org.semanticweb.owlapi.model.OWLObjectProperty;
 import org.semanticweb.owlapi.model.OWLObjectSomeValuesFrom;
 import org.semanticweb.owlapi.model.OWLOntology;
-import org.semanticweb.owlapi.model.parameters.Imports;
-import org.semanticweb.owlapi.model.parameters.Navigation;
+import org.semanticweb.owlapi.model.OWLRestriction;
 import org.semanticweb.owlapi.util.OWLClassExpressionVisitorAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,9 +48,12 @@ public class DotDefinitionRewriter implements IAnnotationRewriter {
     private static final Logger logger = LoggerFactory.getLogger(DotDefinitionRewriter.class);
 
     private OWLOntology ontology;
+    private ImportsClosureResolver resolver;
     private OWLDataFactory factory;
     private Set<OWLAnnotation> defaultAnnotations = new HashSet<OWLAnnotation>();
     private boolean includeID;
+    private LabelTable labelTable;
+    private DefinitionWriterVisitor visitor = new DefinitionWriterVisitor();
 
     /**
      * Creates a new instance.
@@ -71,11 +73,34 @@ public class DotDefinitionRewriter implements IAnnotationRewriter {
      *                 ID in the generated definitions.
      */
     public DotDefinitionRewriter(OWLOntology ontology, boolean withID) {
-        this.ontology = ontology;
+        this(new ImportsClosureResolver(ontology), withID);
+    }
+
+    /**
+     * Creates a new instance that uses an existing resolver to look up labels.
+     * 
+     * @param resolver The resolver for the ontology the axioms to rewrite belong
+     *                 to.
+     * @param withID   If {@code true} (default, term labels are followed by their
+     *                 ID in the generated definitions.
+     */
+    public DotDefinitionRewriter(ImportsClosureResolver resolver, boolean withID) {
+        this.resolver = resolver;
+        ontology = resolver.getOntology();
         factory = ontology.getOWLOntologyManager().getOWLDataFactory();
         includeID = withID;
     }
 
+    /**
+     * Sets a table of labels and IDs to use for entities that have no label or ID
+     * in the ontology.
+     * 
+     * @param table The table to use ({@code null} to disable).
+     */
+    public void setLabelTable(LabelTable table) {
+        labelTable = table;
+    }
+
     @Override
     public OWLAnnotationAssertionAxiom rewrite(OWLClass c, OWLAnnotationAssertionAxiom original) {
         if ( !original.getValue().isLiteral() || !original.getValue().asLiteral().get().getLiteral().equals(".") ) {
@@ -96,9 +121,11 @@ public class DotDefinitionRewriter implements IAnnotationRewriter {
     private OWLAnnotationAssertionAxiom generate(OWLClass c, Set<OWLAnnotation> annotations) {
         OWLClassExpression oce = getDefiningClassExpression(c);
         if ( oce != null ) {
-            logger.debug(String.format("Class expression for %s: %s", c.getIRI().toQuotedString(), oce));
+            if ( logger.isDebugEnabled() ) {
+                logger.debug(String.format("Class expression for %s: %s", c.getIRI().toQuotedString(), oce));
+            }
 
-            DefinitionWriterVisitor visitor = new DefinitionWriterVisitor();
+            visitor.reset();
             oce.accept(visitor);
             String definition = visitor.getDefinition();
 
@@ -106,7 +133,9 @@ public class DotDefinitionRewriter implements IAnnotationRewriter {
                     factory.getOWLLiteral(definition), annotations);
         }
 
-        logger.debug(String.format("No class expression for %s", c.getIRI().toQuotedString()));
+        if ( logger.isDebugEnabled() ) {
+            logger.debug(String.format("No class expression for %s", c.getIRI().toQuotedString()));
+        }
         return null;
     }
 
@@ -114,11 +143,11 @@ public class DotDefinitionRewriter implements IAnnotationRewriter {
      * Get the logical definition of the class.
      */
     private OWLClassExpression getDefiningClassExpression(OWLClass c) {
-        for ( OWLAxiom ax : ontology.getAxioms(c, Imports.INCLUDED) ) {
-            if ( ax instanceof OWLEquivalentClassesAxiom ) {
-                OWLEquivalentClassesAxiom aca = (OWLEquivalentClassesAxiom) ax;
-                for (OWLClassExpression oce : aca.getClassExpressionsAsList()) {
-                    if ( !oce.getObjectPropertiesInSignature().isEmpty() ) {
+        List<OWLOntology> closure = resolver.getImportsClosure();
+        for ( int i = 0, n = closure.size(); i < n; i++ ) {
+            for ( OWLEquivalentClassesAxiom aca : closure.get(i).getEquivalentClassesAxioms(c) ) {
+                for ( OWLClassExpression oce : aca.getClassExpressions() ) {
+                    if ( hasObjectProperty(oce) ) {
                         return oce;
                     }
                 }
@@ -127,6 +156,27 @@ public class DotDefinitionRewriter implements IAnnotationRewriter {
         return null;
     }
 
+    /*
+     * Check whether a class expression involves at least one object property,
+     * without collecting its signature.
+     */
+    private static boolean hasObjectProperty(OWLClassExpression oce) {
+        if ( oce instanceof OWLRestriction ) {
+            // Object restrictions have an object property; data restrictions cannot
+            // contain one in their filler
+            return ((OWLRestriction) oce).getProperty().isObjectPropertyExpression();
+        } else if ( oce instanceof OWLNaryBooleanClassExpression ) {
+            for ( OWLClassExpression operand : ((OWLNaryBooleanClassExpression) oce).getOperands() ) {
+                if ( hasObjectProperty(operand) ) {
+                    return true;
+                }
+            }
+        } else if ( oce instanceof OWLObjectComplementOf ) {
+            return hasObjectProperty(((OWLObjectComplementOf) oce).getOperand());
+        }
+        return false;
+    }
+
     /*
      * Get the label of the entity, optionally followed by its short ID.
      */
@@ -134,8 +184,7 @@ public class DotDefinitionRewriter implements IAnnotationRewriter {
         String iri = entity.getIRI().toString();
         String label = null;
         String id = null;
-        for ( OWLAnnotationAssertionAxiom axiom : ontology.getAxioms(OWLAnnotationAssertionAxiom.class, entity.getIRI(),
-                Imports.INCLUDED, Navigation.IN_SUB_POSITION) ) {
+        for ( OWLAnnotationAssertionAxiom axiom : resolver.getAnnotationAssertionAxioms(entity.getIRI()) ) {
             if ( axiom.getProperty().isLabel() && axiom.getValue().isLiteral() ) {
                 label = axiom.getValue().asLiteral().get().getLiteral();
             } else if ( axiom.getProperty().equals(Constants.OBOID_PROPERTY)
@@ -144,6 +193,19 @@ public class DotDefinitionRewriter implements IAnnotationRewriter {
             }
         }
 
+        // Fall back to the external table for entities not described in the ontology
+        if ( labelTable != null && (label == null || id == null) ) {
+            LabelTable.Entry entry = labelTable.get(entity.getIRI());
+            if ( entry != null ) {
+                if ( label == null ) {
+                    label = entry.getLabel();
+                }
+                if ( id == null ) {
+                    id = entry.getID();
+                }
+            }
+        }
+
         // Gene entities don't have a OBO ID, so we fabricate one from the IRI
         if ( id == null && iri.startsWith(Constants.FBGN_PREFIX) ) {
             id = "FBgn" + iri.substring(Constants.FBGN_PREFIX.length());
@@ -162,43 +224,58 @@ public class DotDefinitionRewriter implements IAnnotationRewriter {
 
     /*
      * A visitor to walk through a class expression and turn it into a
-     * human-readable string.
+     * human-readable string. The same instance is reused from one definition to
+     * the next, so that the buffer is only allocated once.
      */
     private class DefinitionWriterVisitor extends OWLClassExpressionVisitorAdapter {
 
-        ArrayList<String> items = new ArrayList<String>();
+        StringBuilder buffer = new StringBuilder(256);
         ClassExpressionType currentType;
 
+        public void reset() {
+            buffer.setLength(0);
+            currentType = null;
+        }
+
         public String getDefinition() {
-            return String.join(" ", items) + ".";
+            return buffer.append('.').toString();
+        }
+
+        private void add(String word) {
+            if ( buffer.length() > 0 ) {
+                buffer.append(' ');
+            }
+            buffer.append(word);
         }
 
         @Override
         public void visit(OWLObjectIntersectionOf ce) {
             currentType = ce.getClassExpressionType();
-            List<OWLClassExpression> operands = ce.getOperandsAsList();
-            for ( int i = 0; i < operands.size(); i++ ) {
-                operands.get(i).accept(this);
+            Set<OWLClassExpression> operands = ce.getOperands();
+            int n = operands.size();
+            int i = 0;
+            for ( OWLClassExpression operand : operands ) {
+                operand.accept(this);
                 if ( i == 0 ) {
-                    items.add("that");
-                } else if ( i < operands.size() - 1 ) {
-                    items.add("and");
+                    add("that");
+                } else if ( i < n - 1 ) {
+                    add("and");
                 }
+                i += 1;
             }
         }
 
         @Override
         public void visit(OWLObjectSomeValuesFrom ce) {
             currentType = ce.getClassExpressionType();
-            for ( OWLObjectProperty prop : ce.getObjectPropertiesInSignature() ) {
-                ObjectProperty op = ObjectProperty.fromIRI(prop.getIRI());
-                if ( op != null ) {
-                    items.add(op.getHumanExpression());
-                } else {
-                    // Use the property's own label and default connecting word
-                    items.add(getLabel(prop, false).replace('_', ' '));
-                    items.add("some");
-                }
+            OWLObjectProperty prop = ce.getProperty().getNamedProperty();
+            ObjectProperty op = ObjectProperty.fromIRI(prop.getIRI());
+            if ( op != null ) {
+                add(op.getHumanExpression());
+            } else {
+                // Use the property's own label and default connecting word
+                add(getLabel(prop, false).replace('_', ' '));
+                add("some");
             }
             ce.getFiller().accept(this);
         }
@@ -206,13 +283,13 @@ public class DotDefinitionRewriter implements IAnnotationRewriter {
         @Override
         public void visit(OWLClass ce) {
             if ( currentType == ClassExpressionType.OBJECT_INTERSECTION_OF ) {
-                if ( items.isEmpty() ) {
-                    items.add("Any");
+                if ( buffer.length() == 0 ) {
+                    add("Any");
                 } else {
-                    items.add("is a(n)");
+                    add("is a(n)");
                 }
             }
-            items.add(getLabel(ce, includeID));
+            add(getLabel(ce, includeID));
         }
     }
 }
@@ -280,12 +357,16 @@ enum ObjectProperty {
         MAP = Collections.unmodifiableMap(map);
     }
 
-    private final String label;
-    private final String connector;
+    private final String expression;
 
     ObjectProperty(String label, String connector) {
-        this.label = label;
-        this.connector = connector;
+        if ( connector == null ) {
+            expression = label + " some";
+        } else if ( !connector.isEmpty() ) {
+            expression = label + connector;
+        } else {
+            expression = label;
+        }
     }
 
     ObjectProperty(String label) {
@@ -293,13 +374,7 @@ enum ObjectProperty {
     }
 
     public String getHumanExpression() {
-        if ( connector == null ) {
-            return label + " some";
-        } else if ( !connector.isEmpty() ) {
-            return label + connector;
-        } else {
-            return label;
-        }
+        return expression;
     }
 
     public static ObjectProperty fromIRI(IRI iri) {
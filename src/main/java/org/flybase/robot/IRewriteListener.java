@@ -0,0 +1,32 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+
+/**
+ * Represents an object that wants to be notified of the axioms produced by a
+ * {@link BatchAnnotationRewriter}.
+ */
+public interface IRewriteListener {
+
+    /**
+     * Called whenever a new annotation axiom has been produced.
+     * 
+     * @param c        The class whose annotation has been rewritten.
+     * @param original The original annotation axiom, or {@code null} if the new
+     *                 axiom has been generated from scratch.
+     * @param result   The new annotation axiom.
+     * @param rewriter The rewriter that produced the new axiom.
+     */
+    public void axiomRewritten(OWLClass c, OWLAnnotationAssertionAxiom original, OWLAnnotationAssertionAxiom result,
+            IAnnotationRewriter rewriter);
+}
@@ -0,0 +1,182 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.model.parameters.Navigation;
+
+/**
+ * Helper class to look up annotation assertion axioms across the imports
+ * closure of an ontology.
+ * <p>
+ * This is equivalent to querying the ontology with {@link Imports#INCLUDED},
+ * except that the root ontology is always queried first and that an imported
+ * ontology is only queried if a Bloom filter built from the annotation subjects
+ * of that ontology indicates that it may contain axioms about the requested
+ * IRI. The filters are built upon the first lookup.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class ImportsClosureResolver {
+
+    private OWLOntology ontology;
+    private List<OWLOntology> closure;
+    private OWLOntology[] imports;
+    private MembershipFilter[] filters;
+
+    /**
+     * Creates a new instance.
+     * 
+     * @param ontology The root ontology.
+     */
+    public ImportsClosureResolver(OWLOntology ontology) {
+        this.ontology = ontology;
+    }
+
+    /**
+     * Gets the root ontology.
+     * 
+     * @return The ontology this resolver was created for.
+     */
+    public OWLOntology getOntology() {
+        return ontology;
+    }
+
+    /**
+     * Gets the imports closure of the root ontology. The closure is computed once
+     * and cached.
+     * 
+     * @return The root ontology followed by all the ontologies it imports,
+     *         directly or indirectly.
+     */
+    public List<OWLOntology> getImportsClosure() {
+        if ( closure == null ) {
+            ArrayList<OWLOntology> list = new ArrayList<OWLOntology>();
+            list.add(ontology);
+            for ( OWLOntology imported : ontology.getImportsClosure() ) {
+                if ( imported != ontology ) {
+                    list.add(imported);
+                }
+            }
+            closure = Collections.unmodifiableList(list);
+        }
+        return closure;
+    }
+
+    /**
+     * Gets all annotation assertion axioms about an entity, from the root ontology
+     * and its imports closure.
+     * 
+     * @param iri The IRI of the annotated entity.
+     * @return The annotation assertion axioms whose subject is the given IRI,
+     *         without duplicates.
+     */
+    public Set<OWLAnnotationAssertionAxiom> getAnnotationAssertionAxioms(IRI iri) {
+        if ( filters == null ) {
+            buildFilters();
+        }
+
+        Set<OWLAnnotationAssertionAxiom> axioms = ontology.getAxioms(OWLAnnotationAssertionAxiom.class, iri,
+                Imports.EXCLUDED, Navigation.IN_SUB_POSITION);
+        Set<OWLAnnotationAssertionAxiom> merged = null;
+        for ( int i = 0; i < imports.length; i++ ) {
+            if ( filters[i].mayContain(iri) ) {
+                Set<OWLAnnotationAssertionAxiom> imported = imports[i].getAxioms(OWLAnnotationAssertionAxiom.class,
+                        iri, Imports.EXCLUDED, Navigation.IN_SUB_POSITION);
+                if ( !imported.isEmpty() ) {
+                    if ( merged == null ) {
+                        merged = new HashSet<OWLAnnotationAssertionAxiom>(axioms);
+                    }
+                    merged.addAll(imported);
+                }
+            }
+        }
+
+        return merged != null ? merged : axioms;
+    }
+
+    /*
+     * Build one membership filter per imported ontology.
+     */
+    private void buildFilters() {
+        List<OWLOntology> all = getImportsClosure();
+        imports = all.subList(1, all.size()).toArray(new OWLOntology[all.size() - 1]);
+        filters = new MembershipFilter[imports.length];
+        for ( int i = 0; i < imports.length; i++ ) {
+            Set<OWLAnnotationAssertionAxiom> axioms = imports[i].getAxioms(AxiomType.ANNOTATION_ASSERTION);
+            filters[i] = new MembershipFilter(axioms.size());
+            for ( OWLAnnotationAssertionAxiom axiom : axioms ) {
+                if ( axiom.getSubject() instanceof IRI ) {
+                    filters[i].add((IRI) axiom.getSubject());
+                }
+            }
+        }
+    }
+
+    /*
+     * A simple Bloom filter over IRIs, sized for a false positive rate of about 1%.
+     */
+    private static class MembershipFilter {
+
+        private static final int BITS_PER_ELEMENT = 10;
+        private static final int HASHES = 7;
+
+        private final long[] bits;
+        private final int nbits;
+
+        MembershipFilter(int expected) {
+            nbits = Math.max(64, expected * BITS_PER_ELEMENT);
+            bits = new long[(nbits + 63) / 64];
+        }
+
+        void add(IRI iri) {
+            int h1 = iri.hashCode();
+            int h2 = mix(h1);
+            for ( int i = 0; i < HASHES; i++ ) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % nbits;
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        boolean mayContain(IRI iri) {
+            int h1 = iri.hashCode();
+            int h2 = mix(h1);
+            for ( int i = 0; i < HASHES; i++ ) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % nbits;
+                if ( (bits[bit >>> 6] & (1L << bit)) == 0 ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /*
+         * Derive a second hash from the first one (MurmurHash3 finalizer).
+         */
+        private static int mix(int h) {
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h | 1;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.obolibrary.robot.IOHelper;
+import org.semanticweb.owlapi.model.IRI;
+
+/**
+ * A read-only table of labels and IDs for entities that are not described in
+ * the ontology itself.
+ * <p>
+ * The table is loaded from a tab-separated file where each line contains the
+ * IRI (or CURIE) of an entity, its label, and optionally its short ID. Empty
+ * lines and lines starting with a {@code #} are ignored. Lines may end with
+ * either LF or CRLF.
+ */
+public class LabelTable {
+
+    private HashMap<IRI, Entry> entries = new HashMap<IRI, Entry>();
+
+    /**
+     * Loads a table from a file.
+     * 
+     * @param filename The name of the TSV file to load.
+     * @param ioHelper The helper whose prefixes should be used to expand CURIEs.
+     * @return The loaded table.
+     * @throws IOException If the file cannot be read or contains an invalid
+     *                     line.
+     */
+    public static LabelTable load(String filename, IOHelper ioHelper) throws IOException {
+        return load(filename, ioHelper.getPrefixes());
+    }
+
+    /**
+     * Loads a table from a file.
+     * 
+     * @param filename The name of the TSV file to load.
+     * @param prefixes The prefix map to use to expand CURIEs.
+     * @return The loaded table.
+     * @throws IOException If the file cannot be read or contains an invalid
+     *                     line (including a CURIE with an unknown prefix).
+     */
+    public static LabelTable load(String filename, Map<String, String> prefixes) throws IOException {
+        LabelTable table = new LabelTable();
+        try ( BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8), 65536) ) {
+            String line;
+            int lineNo = 0;
+            while ( (line = reader.readLine()) != null ) {
+                lineNo += 1;
+                if ( line.isEmpty() || line.charAt(0) == '#' ) {
+                    continue;
+                }
+
+                int first = line.indexOf('\t');
+                if ( first == -1 ) {
+                    throw new IOException(String.format("Invalid line %d in %s", lineNo, filename));
+                }
+                int second = line.indexOf('\t', first + 1);
+
+                IRI iri = expand(line.substring(0, first), prefixes);
+                if ( iri == null ) {
+                    throw new IOException(
+                            String.format("Invalid IRI or unknown prefix at line %d in %s", lineNo, filename));
+                }
+                String label = second == -1 ? line.substring(first + 1) : line.substring(first + 1, second);
+                String id = second == -1 ? null : line.substring(second + 1);
+                table.entries.put(iri, new Entry(label.isEmpty() ? null : label,
+                        id == null || id.isEmpty() ? null : id));
+            }
+        }
+        return table;
+    }
+
+    /*
+     * Turn a CURIE or a full IRI into an IRI, or return null if the prefix of the
+     * CURIE is unknown.
+     */
+    private static IRI expand(String value, Map<String, String> prefixes) {
+        int colon = value.indexOf(':');
+        if ( colon < 1 ) {
+            return null;
+        }
+        if ( value.startsWith("//", colon + 1) || value.startsWith("urn:") ) {
+            return IRI.create(value);
+        }
+
+        String namespace = prefixes.get(value.substring(0, colon));
+        return namespace != null ? IRI.create(namespace + value.substring(colon + 1)) : null;
+    }
+
+    /**
+     * Gets the label and ID of an entity.
+     * 
+     * @param iri The IRI of the entity.
+     * @return The table entry for the entity, or {@code null} if the table does
+     *         not contain it.
+     */
+    public Entry get(IRI iri) {
+        return entries.get(iri);
+    }
+
+    /**
+     * Gets the number of entities in the table.
+     * 
+     * @return The number of entities.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The label and ID of a single entity.
+     */
+    public static class Entry {
+        private final String label;
+        private final String id;
+
+        Entry(String label, String id) {
+            this.label = label;
+            this.id = id;
+        }
+
+        /**
+         * Gets the label of the entity.
+         * 
+         * @return The label, or {@code null} if the table has no label for it.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Gets the short ID of the entity.
+         * 
+         * @return The ID, or {@code null} if the table has no ID for it.
+         */
+        public String getID() {
+            return id;
+        }
+    }
+}
@@ -9,20 +9,31 @@
 
 package org.flybase.robot;
 
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Options;
+import org.flybase.robot.BatchAnnotationRewriter.DuplicatePolicy;
 import org.obolibrary.robot.Command;
 import org.obolibrary.robot.CommandLineHelper;
 import org.obolibrary.robot.CommandState;
 import org.obolibrary.robot.IOHelper;
+import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.OWLAnnotation;
 import org.semanticweb.owlapi.model.OWLAnnotationValue;
+import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyChange;
-import org.semanticweb.owlapi.model.OWLOntologyManager;
 
 /**
  * A ROBOT command to automatically rewrite definitions.
@@ -51,12 +62,16 @@ public class RewriteDefinitionCommand implements Command {
         options.addOption("d", "dot-definitions", false, "rewrite DOT definitions");
         options.addOption("D", "null-definitions", false, "treat null definitions as DOT definitions");
         options.addOption(null, "no-ids", false, "do not insert term IDs within generated definitions");
+        options.addOption(null, "labels-from", true, "load fallback labels and IDs from specified TSV file");
 
         options.addOption("s", "sub-definitions", false, "rewrite SUB definitions");
 
         options.addOption(null, "add-annotation", true, "add specified annotation to generated definitions");
         options.addOption(null, "add-annotation-iri", true, "add specified annotation to generated definitions");
         options.addOption(null, "write-to", true, "write new axioms to specified file");
+        options.addOption(null, "duplicates", true,
+                "what to do with duplicate generated definitions (ignore, warn, skip, error)");
+        options.addOption(null, "export-to", true, "write rewritten definitions to specified TSV or JSONL file");
     }
 
     @Override
@@ -100,12 +115,17 @@ public class RewriteDefinitionCommand implements Command {
         OWLOntology ontology = state.getOntology();
         OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
 
+        ImportsClosureResolver resolver = new ImportsClosureResolver(ontology);
         BatchAnnotationRewriter rewriter = new BatchAnnotationRewriter();
         if ( line.hasOption('d') ) {
-            rewriter.addRewriter(new DotDefinitionRewriter(ontology, !line.hasOption("no-ids")));
+            DotDefinitionRewriter dotRewriter = new DotDefinitionRewriter(resolver, !line.hasOption("no-ids"));
+            if ( line.hasOption("labels-from") ) {
+                dotRewriter.setLabelTable(LabelTable.load(line.getOptionValue("labels-from"), ioHelper));
+            }
+            rewriter.addRewriter(dotRewriter);
         }
         if ( line.hasOption('s') ) {
-            rewriter.addRewriter(new SubDefinitionRewriter(ontology));
+            rewriter.addRewriter(new SubDefinitionRewriter(resolver));
         }
         if ( line.hasOption('f') ) {
             rewriter.setIRIFilter(Constants.OBO_PREFIX + line.getOptionValue('f'));
@@ -116,6 +136,15 @@ public class RewriteDefinitionCommand implements Command {
         if ( line.hasOption("include-obsolete") ) {
             rewriter.setRewriteForObsoleteTerms(true);
         }
+        DuplicatePolicy duplicatePolicy = DuplicatePolicy.IGNORE;
+        if ( line.hasOption("duplicates") ) {
+            try {
+                duplicatePolicy = DuplicatePolicy.valueOf(line.getOptionValue("duplicates").toUpperCase(Locale.ROOT));
+            } catch ( IllegalArgumentException e ) {
+                throw new Exception("Invalid value for --duplicates (expected ignore, warn, skip, or error)");
+            }
+            rewriter.setDuplicatePolicy(duplicatePolicy);
+        }
         if ( line.hasOption("add-annotation") ) {
             for ( String value : line.getOptionValues("add-annotation") ) {
                 rewriter.addAnnotation(getAnnotation(factory, ioHelper, value, false));
@@ -127,22 +156,68 @@ public class RewriteDefinitionCommand implements Command {
             }
         }
 
-        List<OWLOntologyChange> changes = rewriter.rewrite(ontology, Constants.DEFINITION_PROPERTY);
+        List<OWLOntologyChange> changes;
+        if ( line.hasOption("export-to") ) {
+            try ( RewriteRecordWriter exporter = new RewriteRecordWriter(line.getOptionValue("export-to")) ) {
+                rewriter.setListener(exporter);
+                changes = rewriter.rewrite(resolver, Constants.DEFINITION_PROPERTY);
+            }
+        } else {
+            changes = rewriter.rewrite(resolver, Constants.DEFINITION_PROPERTY);
+        }
 
-        // Optional save only the new axioms to a separate file
+        if ( duplicatePolicy == DuplicatePolicy.ERROR && !rewriter.getDuplicates().isEmpty() ) {
+            // Do not leave behind records of definitions that will never be applied
+            if ( line.hasOption("export-to") ) {
+                Files.deleteIfExists(Paths.get(line.getOptionValue("export-to")));
+            }
+            throw new Exception(String.format("Duplicate definitions generated for %d term(s)",
+                    rewriter.getDuplicates().size()));
+        }
+
+        // Optionally save only the new axioms to a separate file. This is done in the
+        // background while the changes are applied to the main ontology; the new
+        // axioms go into an ontology with its own manager so that both threads never
+        // touch the same manager.
+        ExecutorService executor = null;
+        Future<?> writeTo = null;
         if ( !changes.isEmpty() && line.hasOption("write-to") ) {
-            OWLOntologyManager mgr = ontology.getOWLOntologyManager();
-            OWLOntology output = mgr.createOntology();
+            Set<OWLAxiom> newAxioms = new HashSet<OWLAxiom>();
             for ( OWLOntologyChange change : changes ) {
                 if ( change.isAddAxiom() ) {
-                    mgr.addAxiom(output, change.getAxiom());
+                    newAxioms.add(change.getAxiom());
                 }
             }
-            ioHelper.saveOntology(output, line.getOptionValue("write-to"));
+            OWLOntology output = OWLManager.createOWLOntologyManager().createOntology(newAxioms);
+            String writeToPath = line.getOptionValue("write-to");
+            executor = Executors.newSingleThreadExecutor();
+            writeTo = executor.submit(() -> {
+                ioHelper.saveOntology(output, writeToPath);
+                return null;
+            });
         }
 
-        ontology.getOWLOntologyManager().applyChanges(changes);
-        CommandLineHelper.maybeSaveOutput(line, ontology);
+        try {
+            ontology.getOWLOntologyManager().applyChanges(changes);
+            CommandLineHelper.maybeSaveOutput(line, ontology);
+
+            if ( writeTo != null ) {
+                try {
+                    writeTo.get();
+                } catch ( ExecutionException e ) {
+                    // Report the original error, not the wrapper
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof Exception ) {
+                        throw (Exception) cause;
+                    }
+                    throw (Error) cause;
+                }
+            }
+        } finally {
+            if ( executor != null ) {
+                executor.shutdownNow();
+            }
+        }
 
         return state;
     }
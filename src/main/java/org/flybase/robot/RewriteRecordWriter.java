@@ -0,0 +1,228 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAnnotationValue;
+import org.semanticweb.owlapi.model.OWLClass;
+
+/**
+ * A rewrite listener that writes one flat record per rewritten axiom.
+ * <p>
+ * Each record contains the IRI of the class, the old value (if any), the new
+ * value, the name of the rewriter that produced the new value, and the
+ * annotations attached to the new axiom. Records are written either as
+ * tab-separated values or as JSON Lines.
+ * <p>
+ * In TSV records, tabs, newlines and backslashes are escaped with a backslash,
+ * and a missing value (the old value of a generated definition) is written as
+ * {@code \N}, so that it can be told apart from an empty value. Annotations are
+ * written in a single field as {@code property=value} pairs separated by
+ * {@code |}; any {@code |} or {@code =} within a property or a value is also
+ * escaped with a backslash. In JSON records, a missing value is {@code null}.
+ * <p>
+ * Only the lexical form of literal values is written; their language tags and
+ * datatypes are not.
+ */
+public class RewriteRecordWriter implements IRewriteListener, Closeable {
+
+    /**
+     * The supported output formats.
+     */
+    public enum Format {
+        TSV,
+        JSONL
+    }
+
+    private Writer writer;
+    private Format format;
+    private StringBuilder buffer = new StringBuilder(512);
+
+    /**
+     * Creates a new instance.
+     * 
+     * @param filename The name of the file to write the records to.
+     * @param format   The format to write the records in.
+     * @throws IOException If the file cannot be opened.
+     */
+    public RewriteRecordWriter(String filename, Format format) throws IOException {
+        writer = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8), 65536);
+        this.format = format;
+        if ( format == Format.TSV ) {
+            writer.write("iri\told_value\tnew_value\trewriter\tannotations\n");
+        }
+    }
+
+    /**
+     * Creates a new instance, guessing the format from the file extension. Files
+     * ending in ".jsonl" or ".json" are written as JSON Lines, all other files as
+     * tab-separated values.
+     * 
+     * @param filename The name of the file to write the records to.
+     * @throws IOException If the file cannot be opened.
+     */
+    public RewriteRecordWriter(String filename) throws IOException {
+        this(filename, filename.endsWith(".jsonl") || filename.endsWith(".json") ? Format.JSONL : Format.TSV);
+    }
+
+    @Override
+    public void axiomRewritten(OWLClass c, OWLAnnotationAssertionAxiom original, OWLAnnotationAssertionAxiom result,
+            IAnnotationRewriter rewriter) {
+        buffer.setLength(0);
+        String oldValue = original != null ? getValue(original.getValue()) : null;
+        String newValue = getValue(result.getValue());
+        String rewriterName = rewriter.getClass().getSimpleName();
+
+        if ( format == Format.TSV ) {
+            appendTSV(c.getIRI().toString(), false).append('\t');
+            appendTSV(oldValue, false).append('\t');
+            appendTSV(newValue, false).append('\t');
+            appendTSV(rewriterName, false).append('\t');
+            boolean first = true;
+            for ( OWLAnnotation annot : result.getAnnotations() ) {
+                if ( !first ) {
+                    buffer.append('|');
+                }
+                appendTSV(annot.getProperty().getIRI().toString(), true).append('=');
+                appendTSV(getValue(annot.getValue()), true);
+                first = false;
+            }
+        } else {
+            buffer.append("{\"iri\":");
+            appendJSON(c.getIRI().toString()).append(",\"old_value\":");
+            appendJSON(oldValue).append(",\"new_value\":");
+            appendJSON(newValue).append(",\"rewriter\":");
+            appendJSON(rewriterName).append(",\"annotations\":[");
+            boolean first = true;
+            for ( OWLAnnotation annot : result.getAnnotations() ) {
+                if ( !first ) {
+                    buffer.append(',');
+                }
+                buffer.append("{\"property\":");
+                appendJSON(annot.getProperty().getIRI().toString()).append(",\"value\":");
+                appendJSON(getValue(annot.getValue())).append('}');
+                first = false;
+            }
+            buffer.append("]}");
+        }
+        buffer.append('\n');
+
+        try {
+            writer.append(buffer);
+        } catch ( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /*
+     * Get the string form of an annotation value.
+     */
+    private String getValue(OWLAnnotationValue value) {
+        if ( value.isLiteral() ) {
+            return value.asLiteral().get().getLiteral();
+        } else if ( value.isIRI() ) {
+            return value.asIRI().get().toString();
+        }
+        return value.toString();
+    }
+
+    /*
+     * Append a value to the buffer, escaping characters that cannot appear in a
+     * TSV field. If the value is part of the annotations field, the '|' and '='
+     * separators are escaped as well. A null value is written as "\N".
+     */
+    private StringBuilder appendTSV(String value, boolean inAnnotations) {
+        if ( value == null ) {
+            buffer.append("\\N");
+        } else {
+            for ( int i = 0, n = value.length(); i < n; i++ ) {
+                char ch = value.charAt(i);
+                switch ( ch ) {
+                case '\t':
+                    buffer.append("\\t");
+                    break;
+                case '\n':
+                    buffer.append("\\n");
+                    break;
+                case '\r':
+                    buffer.append("\\r");
+                    break;
+                case '\\':
+                    buffer.append("\\\\");
+                    break;
+                case '|':
+                case '=':
+                    if ( inAnnotations ) {
+                        buffer.append('\\');
+                    }
+                    buffer.append(ch);
+                    break;
+                default:
+                    buffer.append(ch);
+                }
+            }
+        }
+        return buffer;
+    }
+
+    /*
+     * Append a value to the buffer as a JSON string, or as null.
+     */
+    private StringBuilder appendJSON(String value) {
+        if ( value == null ) {
+            return buffer.append("null");
+        }
+
+        buffer.append('"');
+        for ( int i = 0, n = value.length(); i < n; i++ ) {
+            char ch = value.charAt(i);
+            switch ( ch ) {
+            case '"':
+                buffer.append("\\\"");
+                break;
+            case '\\':
+                buffer.append("\\\\");
+                break;
+            case '\n':
+                buffer.append("\\n");
+                break;
+            case '\r':
+                buffer.append("\\r");
+                break;
+            case '\t':
+                buffer.append("\\t");
+                break;
+            default:
+                if ( ch < 0x20 ) {
+                    buffer.append(String.format("\\u%04x", (int) ch));
+                } else {
+                    buffer.append(ch);
+                }
+            }
+        }
+        return buffer.append('"');
+    }
+}
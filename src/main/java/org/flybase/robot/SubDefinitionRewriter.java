@@ -19,8 +19,6 @@ import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLDataFactory;
 import org.semanticweb.owlapi.model.OWLOntology;
-import org.semanticweb.owlapi.model.parameters.Imports;
-import org.semanticweb.owlapi.model.parameters.Navigation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,12 +36,16 @@ public class SubDefinitionRewriter implements IAnnotationRewriter {
 
     private static final Pattern SUB_PATTERN = Pattern.compile("\\$sub[_]([a-zA-Z]+)[:]([0-9]+)");
 
-    private OWLOntology ontology;
+    private ImportsClosureResolver resolver;
     private OWLDataFactory factory;
 
     public SubDefinitionRewriter(OWLOntology ontology) {
-        this.ontology = ontology;
-        factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+        this(new ImportsClosureResolver(ontology));
+    }
+
+    public SubDefinitionRewriter(ImportsClosureResolver resolver) {
+        this.resolver = resolver;
+        factory = resolver.getOntology().getOWLOntologyManager().getOWLDataFactory();
     }
 
     @Override
@@ -94,8 +96,7 @@ public class SubDefinitionRewriter implements IAnnotationRewriter {
      * Find the definition axiom for the given term.
      */
     private OWLAnnotationAssertionAxiom getDefinition(IRI iri) {
-        for ( OWLAnnotationAssertionAxiom axiom : ontology.getAxioms(OWLAnnotationAssertionAxiom.class, iri,
-                Imports.INCLUDED, Navigation.IN_SUB_POSITION) ) {
+        for ( OWLAnnotationAssertionAxiom axiom : resolver.getAnnotationAssertionAxioms(iri) ) {
             if ( axiom.getProperty().equals(Constants.DEFINITION_PROPERTY) && axiom.getValue().isLiteral() ) {
                 return axiom;
             }
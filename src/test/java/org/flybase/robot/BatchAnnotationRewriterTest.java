@@ -0,0 +1,171 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.flybase.robot.BatchAnnotationRewriter.DuplicatePolicy;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AddAxiom;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+public class BatchAnnotationRewriterTest {
+
+    private OWLOntologyManager manager;
+    private OWLDataFactory factory;
+    private OWLOntology ontology;
+    private ValueRewriter rewriter;
+    private BatchAnnotationRewriter batch;
+
+    @Before
+    public void setUp() throws OWLOntologyCreationException {
+        manager = OWLManager.createOWLOntologyManager();
+        factory = manager.getOWLDataFactory();
+        ontology = manager.createOntology();
+        rewriter = new ValueRewriter();
+        batch = new BatchAnnotationRewriter();
+        batch.addRewriter(rewriter);
+    }
+
+    @Test
+    public void testCollisionWithExistingDefinition() {
+        createClass("FBbt_00000001", "alpha", false);
+        OWLClass b = createClass("FBbt_00000002", "beta", false);
+        rewriter.values.put(b.getIRI(), "alpha");
+
+        batch.setDuplicatePolicy(DuplicatePolicy.WARN);
+        Map<IRI, String> added = getAddedValues(batch.rewrite(ontology, Constants.DEFINITION_PROPERTY));
+
+        assertEquals(Arrays.asList(b.getIRI()), batch.getDuplicates());
+        assertEquals("alpha", added.get(b.getIRI()));
+    }
+
+    @Test
+    public void testCollisionBetweenGeneratedDefinitions() {
+        OWLClass a = createClass("FBbt_00000001", null, false);
+        OWLClass b = createClass("FBbt_00000002", null, false);
+        rewriter.values.put(a.getIRI(), "gamma");
+        rewriter.values.put(b.getIRI(), "gamma");
+
+        batch.setGenerateIfNull(true);
+        batch.setDuplicatePolicy(DuplicatePolicy.WARN);
+        Map<IRI, String> added = getAddedValues(batch.rewrite(ontology, Constants.DEFINITION_PROPERTY));
+
+        // Whichever class comes second is flagged, but both get the new value
+        assertEquals(1, batch.getDuplicates().size());
+        assertTrue(batch.getDuplicates().contains(a.getIRI()) || batch.getDuplicates().contains(b.getIRI()));
+        assertEquals(2, added.size());
+    }
+
+    @Test
+    public void testSkipKeepsOriginal() {
+        createClass("FBbt_00000001", "alpha", false);
+        OWLClass b = createClass("FBbt_00000002", "beta", false);
+        rewriter.values.put(b.getIRI(), "alpha");
+
+        batch.setDuplicatePolicy(DuplicatePolicy.SKIP);
+        List<OWLOntologyChange> changes = batch.rewrite(ontology, Constants.DEFINITION_PROPERTY);
+
+        assertEquals(Arrays.asList(b.getIRI()), batch.getDuplicates());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void testErrorReportsDuplicates() {
+        createClass("FBbt_00000001", "alpha", false);
+        OWLClass b = createClass("FBbt_00000002", "beta", false);
+        OWLClass c = createClass("FBbt_00000003", "gamma", false);
+        rewriter.values.put(b.getIRI(), "alpha");
+        rewriter.values.put(c.getIRI(), "delta");
+
+        batch.setDuplicatePolicy(DuplicatePolicy.ERROR);
+        Map<IRI, String> added = getAddedValues(batch.rewrite(ontology, Constants.DEFINITION_PROPERTY));
+
+        assertEquals(Arrays.asList(b.getIRI()), batch.getDuplicates());
+        assertEquals(2, added.size());
+    }
+
+    @Test
+    public void testIgnoreObsoleteClasses() {
+        OWLClass a = createClass("FBbt_00000001", "alpha", true);
+        OWLClass b = createClass("FBbt_00000002", "beta", false);
+        OWLClass c = createClass("FBbt_00000003", "gamma", false);
+        rewriter.values.put(a.getIRI(), "delta");
+        rewriter.values.put(b.getIRI(), "delta");
+        rewriter.values.put(c.getIRI(), "alpha");
+
+        batch.setRewriteForObsoleteTerms(true);
+        batch.setDuplicatePolicy(DuplicatePolicy.WARN);
+        Map<IRI, String> added = getAddedValues(batch.rewrite(ontology, Constants.DEFINITION_PROPERTY));
+
+        assertTrue(batch.getDuplicates().isEmpty());
+        assertEquals(3, added.size());
+    }
+
+    private Map<IRI, String> getAddedValues(List<OWLOntologyChange> changes) {
+        HashMap<IRI, String> values = new HashMap<IRI, String>();
+        for ( OWLOntologyChange change : changes ) {
+            if ( change instanceof AddAxiom ) {
+                OWLAnnotationAssertionAxiom axiom = (OWLAnnotationAssertionAxiom) change.getAxiom();
+                values.put((IRI) axiom.getSubject(), axiom.getValue().asLiteral().get().getLiteral());
+            }
+        }
+        return values;
+    }
+
+    private OWLClass createClass(String id, String definition, boolean obsolete) {
+        OWLClass c = factory.getOWLClass(IRI.create(Constants.OBO_PREFIX + id));
+        manager.addAxiom(ontology, factory.getOWLDeclarationAxiom(c));
+        if ( definition != null ) {
+            manager.addAxiom(ontology, factory.getOWLAnnotationAssertionAxiom(Constants.DEFINITION_PROPERTY,
+                    c.getIRI(), factory.getOWLLiteral(definition)));
+        }
+        if ( obsolete ) {
+            manager.addAxiom(ontology, factory.getOWLAnnotationAssertionAxiom(factory.getOWLDeprecated(),
+                    c.getIRI(), factory.getOWLLiteral(true)));
+        }
+        return c;
+    }
+
+    /*
+     * Replaces or generates the definition of some classes with a fixed value.
+     */
+    private class ValueRewriter implements IAnnotationRewriter {
+
+        private HashMap<IRI, String> values = new HashMap<IRI, String>();
+
+        @Override
+        public OWLAnnotationAssertionAxiom rewrite(OWLClass c, OWLAnnotationAssertionAxiom original) {
+            String value = values.get(c.getIRI());
+            return value != null ? factory.getOWLAnnotationAssertionAxiom(Constants.DEFINITION_PROPERTY,
+                    c.getIRI(), factory.getOWLLiteral(value)) : original;
+        }
+
+        @Override
+        public OWLAnnotationAssertionAxiom rewrite(OWLClass c) {
+            return rewrite(c, null);
+        }
+    }
+}
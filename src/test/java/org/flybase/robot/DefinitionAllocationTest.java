@@ -0,0 +1,119 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.flybase.robot.ResourceMeter.Measurement;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+/**
+ * Benchmark of the memory allocated to generate a single DOT definition.
+ * <p>
+ * The number of bytes allocated per definition is printed, both for the
+ * current renderer and for a copy of the renderer as it was before it was
+ * optimized ({@link LegacyDotDefinitionRewriter}), on the same ontology. The
+ * test fails if the current renderer allocates more than the old one, if its
+ * allocation grows with the size of the ontology, or, when a baseline is
+ * configured (see {@link ScalingBaseline}), if it regresses against the
+ * baseline.
+ */
+public class DefinitionAllocationTest {
+
+    private static final int SIZE = 2000;
+
+    // Allowed growth of the allocation per definition when the ontology is 4x larger
+    private static final double GROWTH_TOLERANCE = 1.5;
+    private static final double BASELINE_TOLERANCE = 1.2;
+
+    @Test
+    public void testAllocationPerDefinition() throws Exception {
+        ScalingBaseline baseline = ScalingBaseline.fromSystemProperties();
+
+        double small = measure(SIZE, o -> new DotDefinitionRewriter(o)::rewrite);
+        double large = measure(SIZE * 4, o -> new DotDefinitionRewriter(o)::rewrite);
+        System.out.printf("DOT definition: %,.0f B allocated/definition (%d classes), %,.0f B (%d classes)%n",
+                small, SIZE, large, SIZE * 4);
+
+        assertTrue(String.format("Allocation per definition grew from %.0f to %.0f bytes", small, large),
+                large <= small * GROWTH_TOLERANCE);
+
+        if ( baseline != null ) {
+            baseline.check("dot.bytesPerDefinition", large, BASELINE_TOLERANCE);
+            List<String> regressions = baseline.finish();
+            assertTrue("Regressions against baseline: " + regressions, regressions.isEmpty());
+        }
+    }
+
+    @Test
+    public void testAllocationBeforeAfter() throws Exception {
+        double before = measure(SIZE * 4, o -> new LegacyDotDefinitionRewriter(o)::rewrite);
+        double after = measure(SIZE * 4, o -> new DotDefinitionRewriter(o)::rewrite);
+        System.out.printf("DOT definition: %,.0f B allocated/definition before, %,.0f B after (%d classes)%n",
+                before, after, SIZE * 4);
+
+        assertTrue(String.format("Allocation per definition is %.0f bytes, was %.0f bytes", after, before),
+                after <= before);
+    }
+
+    /*
+     * Something that can rewrite a DOT definition (the current and legacy
+     * rewriters do not share an interface).
+     */
+    private interface Renderer {
+        OWLAnnotationAssertionAxiom rewrite(OWLClass c, OWLAnnotationAssertionAxiom original);
+    }
+
+    /*
+     * Get the average number of bytes allocated to rewrite one DOT definition in
+     * an ontology of the given size.
+     */
+    private double measure(int size, Function<OWLOntology, Renderer> constructor) throws Exception {
+        OWLOntology ontology = new SyntheticOntologyGenerator().setClasses(size).setDotRatio(1.0).setSubRatio(0.0)
+                .setObsoleteRatio(0.0).generate();
+        OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+
+        List<OWLClass> classes = new ArrayList<OWLClass>();
+        List<OWLAnnotationAssertionAxiom> definitions = new ArrayList<OWLAnnotationAssertionAxiom>();
+        for ( OWLAnnotationAssertionAxiom axiom : ontology.getAxioms(AxiomType.ANNOTATION_ASSERTION) ) {
+            if ( axiom.getProperty().equals(Constants.DEFINITION_PROPERTY) ) {
+                classes.add(factory.getOWLClass((IRI) axiom.getSubject()));
+                definitions.add(axiom);
+            }
+        }
+
+        Renderer rewriter = constructor.apply(ontology);
+
+        // First pass to warm up the JIT and build the lookup filters
+        for ( int i = 0; i < classes.size(); i++ ) {
+            assertNotNull(rewriter.rewrite(classes.get(i), definitions.get(i)));
+        }
+
+        ResourceMeter meter = new ResourceMeter();
+        meter.start();
+        for ( int i = 0; i < classes.size(); i++ ) {
+            rewriter.rewrite(classes.get(i), definitions.get(i));
+        }
+        Measurement m = meter.stop();
+
+        return (double) m.allocatedBytes / classes.size();
+    }
+}
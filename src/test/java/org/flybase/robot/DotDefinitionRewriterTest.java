@@ -0,0 +1,92 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+public class DotDefinitionRewriterTest {
+
+    private OWLOntologyManager manager;
+    private OWLDataFactory factory;
+    private OWLOntology ontology;
+    private OWLClass genus;
+    private OWLClass alpha;
+    private OWLClass beta;
+    private OWLObjectProperty partOf;
+    private OWLObjectProperty capableOf;
+
+    @Before
+    public void setUp() throws OWLOntologyCreationException {
+        manager = OWLManager.createOWLOntologyManager();
+        factory = manager.getOWLDataFactory();
+        ontology = manager.createOntology();
+
+        genus = createClass("FBbt_00000001", "genus");
+        alpha = createClass("FBbt_00000002", "alpha");
+        beta = createClass("FBbt_00000003", "beta");
+        partOf = factory.getOWLObjectProperty(IRI.create(Constants.OBO_PREFIX + "BFO_0000050"));
+        capableOf = factory.getOWLObjectProperty(IRI.create(Constants.OBO_PREFIX + "RO_0002215"));
+    }
+
+    @Test
+    public void testSimpleExistential() {
+        // genus and (part_of some alpha)
+        OWLClass c = createDefinedClass("FBbt_00000010",
+                factory.getOWLObjectIntersectionOf(genus, factory.getOWLObjectSomeValuesFrom(partOf, alpha)));
+
+        assertEquals("Any genus that is part of some alpha.", render(c));
+    }
+
+    @Test
+    public void testNestedExistential() {
+        // genus and (part_of some (alpha and (capable_of some beta)))
+        OWLClass c = createDefinedClass("FBbt_00000011",
+                factory.getOWLObjectIntersectionOf(genus,
+                        factory.getOWLObjectSomeValuesFrom(partOf, factory.getOWLObjectIntersectionOf(alpha,
+                                factory.getOWLObjectSomeValuesFrom(capableOf, beta)))));
+
+        // Each property must be rendered once, where its restriction is
+        assertEquals("Any genus that is part of some is a(n) alpha that is capable of some beta.", render(c));
+    }
+
+    private String render(OWLClass c) {
+        OWLAnnotationAssertionAxiom dot = factory.getOWLAnnotationAssertionAxiom(Constants.DEFINITION_PROPERTY,
+                c.getIRI(), factory.getOWLLiteral("."));
+        OWLAnnotationAssertionAxiom result = new DotDefinitionRewriter(ontology, false).rewrite(c, dot);
+        return result.getValue().asLiteral().get().getLiteral();
+    }
+
+    private OWLClass createClass(String id, String label) {
+        OWLClass c = factory.getOWLClass(IRI.create(Constants.OBO_PREFIX + id));
+        manager.addAxiom(ontology, factory.getOWLDeclarationAxiom(c));
+        manager.addAxiom(ontology, factory.getOWLAnnotationAssertionAxiom(factory.getRDFSLabel(), c.getIRI(),
+                factory.getOWLLiteral(label)));
+        return c;
+    }
+
+    private OWLClass createDefinedClass(String id, OWLClassExpression definition) {
+        OWLClass c = createClass(id, "defined");
+        manager.addAxiom(ontology, factory.getOWLEquivalentClassesAxiom(c, definition));
+        return c;
+    }
+}
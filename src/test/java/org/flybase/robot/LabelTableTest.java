@@ -0,0 +1,70 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+import org.semanticweb.owlapi.model.IRI;
+
+public class LabelTableTest {
+
+    private static final Map<String, String> PREFIXES = Collections.singletonMap("FB",
+            "http://flybase.org/reports/");
+
+    private LabelTable load(String contents) throws IOException {
+        File file = File.createTempFile("labels", ".tsv");
+        file.deleteOnExit();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return LabelTable.load(file.getPath(), PREFIXES);
+    }
+
+    @Test
+    public void testLoadAndLookup() throws IOException {
+        LabelTable table = load("# A comment\n" + "\n"
+                + "http://flybase.org/reports/FBgn0000001\tgene-1\tFBgn0000001\n"
+                + "FB:FBgn0000002\tgene-2\r\n"
+                + "FB:FBgn0000003\tgene-3\tFBgn0000003\r\n");
+
+        assertEquals(3, table.size());
+
+        LabelTable.Entry e = table.get(IRI.create("http://flybase.org/reports/FBgn0000001"));
+        assertEquals("gene-1", e.getLabel());
+        assertEquals("FBgn0000001", e.getID());
+
+        // CURIE key, no ID column, CRLF line ending
+        e = table.get(IRI.create("http://flybase.org/reports/FBgn0000002"));
+        assertEquals("gene-2", e.getLabel());
+        assertNull(e.getID());
+
+        e = table.get(IRI.create("http://flybase.org/reports/FBgn0000003"));
+        assertEquals("FBgn0000003", e.getID());
+
+        assertNull(table.get(IRI.create("http://flybase.org/reports/FBgn0000004")));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownPrefix() throws IOException {
+        load("FBgn:0000001\tgene-1\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingLabelColumn() throws IOException {
+        load("FB:FBgn0000001\n");
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.semanticweb.owlapi.model.ClassExpressionType;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
+import org.semanticweb.owlapi.model.OWLNamedObject;
+import org.semanticweb.owlapi.model.OWLObjectIntersectionOf;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLObjectSomeValuesFrom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.model.parameters.Navigation;
+import org.semanticweb.owlapi.util.OWLClassExpressionVisitorAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A copy of the DOT definition renderer as it was before it was optimized for
+ * allocation, kept only as the "before" reference of
+ * {@link DefinitionAllocationTest}.
+ * <p>
+ * It looks up annotations with {@link Imports#INCLUDED}, formats debug
+ * messages unconditionally, creates a new visitor and list of words for every
+ * definition, and reads operands and properties through collection copies.
+ */
+public class LegacyDotDefinitionRewriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyDotDefinitionRewriter.class);
+
+    private OWLOntology ontology;
+    private OWLDataFactory factory;
+
+    public LegacyDotDefinitionRewriter(OWLOntology ontology) {
+        this.ontology = ontology;
+        factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+    }
+
+    public OWLAnnotationAssertionAxiom rewrite(OWLClass c, OWLAnnotationAssertionAxiom original) {
+        if ( !original.getValue().isLiteral() || !original.getValue().asLiteral().get().getLiteral().equals(".") ) {
+            return original;
+        }
+
+        OWLClassExpression oce = getDefiningClassExpression(c);
+        if ( oce != null ) {
+            logger.debug(String.format("Class expression for %s: %s", c.getIRI().toQuotedString(), oce));
+
+            DefinitionWriterVisitor visitor = new DefinitionWriterVisitor();
+            oce.accept(visitor);
+            return factory.getOWLAnnotationAssertionAxiom(Constants.DEFINITION_PROPERTY, c.getIRI(),
+                    factory.getOWLLiteral(visitor.getDefinition()), original.getAnnotations());
+        }
+
+        logger.debug(String.format("No class expression for %s", c.getIRI().toQuotedString()));
+        return null;
+    }
+
+    private OWLClassExpression getDefiningClassExpression(OWLClass c) {
+        for ( OWLAxiom ax : ontology.getAxioms(c, Imports.INCLUDED) ) {
+            if ( ax instanceof OWLEquivalentClassesAxiom ) {
+                for ( OWLClassExpression oce : ((OWLEquivalentClassesAxiom) ax).getClassExpressionsAsList() ) {
+                    if ( !oce.getObjectPropertiesInSignature().isEmpty() ) {
+                        return oce;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private String getLabel(OWLNamedObject entity, boolean withID) {
+        String iri = entity.getIRI().toString();
+        String label = null;
+        String id = null;
+        for ( OWLAnnotationAssertionAxiom axiom : ontology.getAxioms(OWLAnnotationAssertionAxiom.class, entity.getIRI(),
+                Imports.INCLUDED, Navigation.IN_SUB_POSITION) ) {
+            if ( axiom.getProperty().isLabel() && axiom.getValue().isLiteral() ) {
+                label = axiom.getValue().asLiteral().get().getLiteral();
+            } else if ( axiom.getProperty().equals(Constants.OBOID_PROPERTY) && axiom.getValue().isLiteral() ) {
+                id = axiom.getValue().asLiteral().get().getLiteral();
+            }
+        }
+
+        if ( id == null && iri.startsWith(Constants.FBGN_PREFIX) ) {
+            id = "FBgn" + iri.substring(Constants.FBGN_PREFIX.length());
+        }
+
+        if ( withID && label != null && id != null ) {
+            return label + " (" + id + ")";
+        } else if ( label != null ) {
+            return label;
+        } else if ( id != null ) {
+            return id;
+        } else {
+            return iri;
+        }
+    }
+
+    private class DefinitionWriterVisitor extends OWLClassExpressionVisitorAdapter {
+
+        ArrayList<String> items = new ArrayList<String>();
+        ClassExpressionType currentType;
+
+        public String getDefinition() {
+            return String.join(" ", items) + ".";
+        }
+
+        @Override
+        public void visit(OWLObjectIntersectionOf ce) {
+            currentType = ce.getClassExpressionType();
+            List<OWLClassExpression> operands = ce.getOperandsAsList();
+            for ( int i = 0; i < operands.size(); i++ ) {
+                operands.get(i).accept(this);
+                if ( i == 0 ) {
+                    items.add("that");
+                } else if ( i < operands.size() - 1 ) {
+                    items.add("and");
+                }
+            }
+        }
+
+        @Override
+        public void visit(OWLObjectSomeValuesFrom ce) {
+            currentType = ce.getClassExpressionType();
+            for ( OWLObjectProperty prop : ce.getObjectPropertiesInSignature() ) {
+                ObjectProperty op = ObjectProperty.fromIRI(prop.getIRI());
+                if ( op != null ) {
+                    items.add(op.getHumanExpression());
+                } else {
+                    items.add(getLabel(prop, false).replace('_', ' '));
+                    items.add("some");
+                }
+            }
+            ce.getFiller().accept(this);
+        }
+
+        @Override
+        public void visit(OWLClass ce) {
+            if ( currentType == ClassExpressionType.OBJECT_INTERSECTION_OF ) {
+                if ( items.isEmpty() ) {
+                    items.add("Any");
+                } else {
+                    items.add("is a(n)");
+                }
+            }
+            items.add(getLabel(ce, true));
+        }
+    }
+}
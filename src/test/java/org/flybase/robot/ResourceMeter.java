@@ -0,0 +1,78 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Measures the wall time, the bytes allocated by the current thread, and the
+ * peak heap usage of a piece of code.
+ * <p>
+ * Allocation is measured with the HotSpot-specific thread MX bean, so only
+ * allocations made by the calling thread are counted.
+ */
+public class ResourceMeter {
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+
+    private long startTime;
+    private long startAllocated;
+
+    /**
+     * Starts a measurement. This triggers a garbage collection and resets the
+     * peak usage of all heap pools, so that the peak heap reflects only the
+     * measured code.
+     */
+    public void start() {
+        System.gc();
+        for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if ( pool.getType() == MemoryType.HEAP ) {
+                pool.resetPeakUsage();
+            }
+        }
+        startAllocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Ends a measurement.
+     * 
+     * @return The resources used since the last call to {@link #start()}.
+     */
+    public Measurement stop() {
+        long elapsed = System.nanoTime() - startTime;
+        long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - startAllocated;
+        long peak = 0;
+        for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if ( pool.getType() == MemoryType.HEAP ) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return new Measurement(elapsed, allocated, peak);
+    }
+
+    /**
+     * The resources used by a measured piece of code.
+     */
+    public static class Measurement {
+        public final long wallNanos;
+        public final long allocatedBytes;
+        public final long peakHeapBytes;
+
+        Measurement(long wallNanos, long allocatedBytes, long peakHeapBytes) {
+            this.wallNanos = wallNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RewriteRecordWriterTest {
+
+    // Contains every character that needs escaping in one format or the other
+    private static final String TRICKY = "a\tb\nc\rd\\e|f=g\"h\u0001i";
+    private static final String PROPERTY = "http://example.org/p=1|x";
+
+    private OWLDataFactory factory;
+    private IAnnotationRewriter rewriter;
+    private OWLClass c;
+    private OWLAnnotationAssertionAxiom generated;
+    private OWLAnnotationAssertionAxiom original;
+    private OWLAnnotationAssertionAxiom rewritten;
+
+    @Before
+    public void setUp() throws Exception {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        factory = manager.getOWLDataFactory();
+        rewriter = new SubDefinitionRewriter(manager.createOntology());
+        c = factory.getOWLClass(IRI.create(Constants.OBO_PREFIX + "FBbt_00000001"));
+
+        OWLAnnotation annot = factory.getOWLAnnotation(factory.getOWLAnnotationProperty(IRI.create(PROPERTY)),
+                factory.getOWLLiteral(TRICKY));
+        generated = factory.getOWLAnnotationAssertionAxiom(Constants.DEFINITION_PROPERTY, c.getIRI(),
+                factory.getOWLLiteral(TRICKY), Collections.singleton(annot));
+        original = factory.getOWLAnnotationAssertionAxiom(Constants.DEFINITION_PROPERTY, c.getIRI(),
+                factory.getOWLLiteral(""));
+        rewritten = factory.getOWLAnnotationAssertionAxiom(Constants.DEFINITION_PROPERTY, c.getIRI(),
+                factory.getOWLLiteral("New definition."));
+    }
+
+    private List<String> write(RewriteRecordWriter.Format format, File file) throws IOException {
+        try ( RewriteRecordWriter writer = new RewriteRecordWriter(file.getPath(), format) ) {
+            writer.axiomRewritten(c, null, generated, rewriter);
+            writer.axiomRewritten(c, original, rewritten, rewriter);
+        }
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testTSVRoundTrip() throws IOException {
+        File file = File.createTempFile("records", ".tsv");
+        file.deleteOnExit();
+        List<String> lines = write(RewriteRecordWriter.Format.TSV, file);
+
+        assertEquals(3, lines.size());
+        assertEquals("iri\told_value\tnew_value\trewriter\tannotations", lines.get(0));
+
+        List<String> fields = split(lines.get(1), '\t');
+        assertEquals(5, fields.size());
+        assertEquals(c.getIRI().toString(), unescape(fields.get(0)));
+        assertEquals("\\N", fields.get(1));
+        assertEquals(TRICKY, unescape(fields.get(2)));
+        assertEquals("SubDefinitionRewriter", unescape(fields.get(3)));
+
+        List<String> annots = split(fields.get(4), '|');
+        assertEquals(1, annots.size());
+        List<String> pair = split(annots.get(0), '=');
+        assertEquals(2, pair.size());
+        assertEquals(PROPERTY, unescape(pair.get(0)));
+        assertEquals(TRICKY, unescape(pair.get(1)));
+
+        // An empty old value is distinct from a missing one
+        fields = split(lines.get(2), '\t');
+        assertEquals("", fields.get(1));
+        assertEquals("New definition.", unescape(fields.get(2)));
+        assertEquals("", fields.get(4));
+    }
+
+    @Test
+    public void testJSONLRoundTrip() throws IOException {
+        File file = File.createTempFile("records", ".jsonl");
+        file.deleteOnExit();
+        List<String> lines = write(RewriteRecordWriter.Format.JSONL, file);
+
+        assertEquals(2, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+
+        JsonNode record = mapper.readTree(lines.get(0));
+        assertEquals(c.getIRI().toString(), record.get("iri").asText());
+        assertTrue(record.get("old_value").isNull());
+        assertEquals(TRICKY, record.get("new_value").asText());
+        assertEquals("SubDefinitionRewriter", record.get("rewriter").asText());
+        assertEquals(1, record.get("annotations").size());
+        assertEquals(PROPERTY, record.get("annotations").get(0).get("property").asText());
+        assertEquals(TRICKY, record.get("annotations").get(0).get("value").asText());
+
+        record = mapper.readTree(lines.get(1));
+        assertEquals("", record.get("old_value").asText());
+        assertEquals(0, record.get("annotations").size());
+    }
+
+    /*
+     * Split a field on a separator, ignoring separators escaped with a backslash.
+     */
+    private List<String> split(String value, char separator) {
+        List<String> parts = new ArrayList<String>();
+        if ( value.isEmpty() ) {
+            return parts;
+        }
+        StringBuilder current = new StringBuilder();
+        for ( int i = 0; i < value.length(); i++ ) {
+            char ch = value.charAt(i);
+            if ( ch == '\\' && i + 1 < value.length() ) {
+                current.append(ch).append(value.charAt(++i));
+            } else if ( ch == separator ) {
+                parts.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(ch);
+            }
+        }
+        parts.add(current.toString());
+        return parts;
+    }
+
+    /*
+     * Undo the escaping of a TSV value.
+     */
+    private String unescape(String value) {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < value.length(); i++ ) {
+            char ch = value.charAt(i);
+            if ( ch == '\\' && i + 1 < value.length() ) {
+                char next = value.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.flybase.robot.ResourceMeter.Measurement;
+import org.junit.Test;
+import org.obolibrary.robot.CommandState;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+/**
+ * End-to-end scalability tests for the rewrite-def command.
+ * <p>
+ * Normal builds only run a small smoke test, without any timing check. The
+ * scaling test itself only runs if the {@code flybase.scaling.tiers} system
+ * property is set (to a comma-separated list of class counts), which the
+ * {@code scaling} Maven profile does for the 10k/100k/1M tiers; it then also
+ * compares the results against a stored baseline (see
+ * {@link ScalingBaseline}).
+ */
+public class ScalabilityTest {
+
+    private static final int SMOKE_SIZE = 1000;
+
+    // Allowed growth of the per-class cost between the smallest and the largest
+    // tier; anything above indicates worse than linear scaling
+    private static final double TIME_TOLERANCE = 2.5;
+    private static final double ALLOCATION_TOLERANCE = 1.5;
+
+    // Allowed degradation compared to the stored baseline
+    private static final double BASELINE_TIME_TOLERANCE = 1.5;
+    private static final double BASELINE_MEMORY_TOLERANCE = 1.2;
+
+    @Test
+    public void testSmoke() throws Exception {
+        run(SMOKE_SIZE);
+    }
+
+    @Test
+    public void testLinearScaling() throws Exception {
+        String tiersProperty = System.getProperty("flybase.scaling.tiers", "");
+        assumeFalse("Scaling test disabled (use -Pscaling)", tiersProperty.isEmpty());
+        int[] tiers = getTiers(tiersProperty);
+        ScalingBaseline baseline = ScalingBaseline.fromSystemProperties();
+
+        // Warm up the JIT so that the smallest tier is not penalized
+        run(tiers[0]);
+
+        Measurement[] results = new Measurement[tiers.length];
+        for ( int i = 0; i < tiers.length; i++ ) {
+            results[i] = run(tiers[i]);
+            double nanosPerClass = (double) results[i].wallNanos / tiers[i];
+            double bytesPerClass = (double) results[i].allocatedBytes / tiers[i];
+            double peakPerClass = (double) results[i].peakHeapBytes / tiers[i];
+            System.out.printf("rewrite-def %,9d classes: %,8d ms, %,10.0f B allocated/class, "
+                    + "%,8.0f B peak heap/class%n", tiers[i], results[i].wallNanos / 1000000, bytesPerClass,
+                    peakPerClass);
+
+            if ( baseline != null ) {
+                baseline.check(tiers[i] + ".nanosPerClass", nanosPerClass, BASELINE_TIME_TOLERANCE);
+                baseline.check(tiers[i] + ".bytesPerClass", bytesPerClass, BASELINE_MEMORY_TOLERANCE);
+                baseline.check(tiers[i] + ".peakHeapPerClass", peakPerClass, BASELINE_MEMORY_TOLERANCE);
+            }
+        }
+
+        int last = tiers.length - 1;
+        if ( last > 0 ) {
+            double timeGrowth = ((double) results[last].wallNanos / tiers[last])
+                    / ((double) results[0].wallNanos / tiers[0]);
+            double allocGrowth = ((double) results[last].allocatedBytes / tiers[last])
+                    / ((double) results[0].allocatedBytes / tiers[0]);
+            assertTrue(String.format("Time per class grew x%.2f from %d to %d classes", timeGrowth, tiers[0],
+                    tiers[last]), timeGrowth <= TIME_TOLERANCE);
+            assertTrue(String.format("Allocation per class grew x%.2f from %d to %d classes", allocGrowth,
+                    tiers[0], tiers[last]), allocGrowth <= ALLOCATION_TOLERANCE);
+        }
+
+        if ( baseline != null ) {
+            List<String> regressions = baseline.finish();
+            assertTrue("Regressions against baseline: " + regressions, regressions.isEmpty());
+        }
+    }
+
+    /*
+     * Generate an ontology of the given size and run the rewrite-def command on it,
+     * as it would be run from the command line.
+     */
+    private Measurement run(int size) throws Exception {
+        SyntheticOntologyGenerator generator = new SyntheticOntologyGenerator().setClasses(size)
+                .setGenes(Math.max(10, size / 20));
+        OWLOntology ontology = generator.generate();
+        File dir = Files.createTempDirectory("rewrite-def").toFile();
+        File writeTo = new File(dir, "new-definitions.owl");
+        File output = new File(dir, "output.owl");
+        File labels = new File(dir, "labels.tsv");
+        File export = new File(dir, "rewritten.tsv");
+        generator.writeGeneLabels(labels);
+
+        CommandState state = new CommandState();
+        state.setOntology(ontology);
+        String[] args = { "--dot-definitions", "--sub-definitions", "--labels-from", labels.getPath(),
+                "--write-to", writeTo.getPath(), "--duplicates", "warn", "--export-to", export.getPath(),
+                "--output", output.getPath() };
+
+        ResourceMeter meter = new ResourceMeter();
+        meter.start();
+        new RewriteDefinitionCommand().execute(state, args);
+        Measurement m = meter.stop();
+
+        assertTrue(writeTo.length() > 0);
+        assertTrue(output.length() > 0);
+        assertTrue(export.length() > 0);
+        writeTo.delete();
+        export.delete();
+        output.delete();
+        labels.delete();
+        dir.delete();
+        return m;
+    }
+
+    private int[] getTiers(String property) {
+        String[] values = property.split(",");
+        int[] tiers = new int[values.length];
+        for ( int i = 0; i < values.length; i++ ) {
+            tiers[i] = Integer.parseInt(values[i].trim());
+        }
+        return tiers;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A stored set of reference measurements, to detect performance regressions.
+ * <p>
+ * The baseline is only used if the {@code flybase.scaling.baseline} system
+ * property points to a file. Every measured value is compared against that
+ * file, and a value that is missing from it counts as a regression. The
+ * measured values are always written to the file named by the
+ * {@code flybase.scaling.baseline-output} property (by default in
+ * {@code target/}), never to the stored baseline itself.
+ * <p>
+ * If the {@code flybase.scaling.update-baseline} property is set to
+ * {@code true}, values are only recorded, not compared. To (re)create the
+ * baseline, run with that property and copy the output file over the stored
+ * baseline.
+ */
+public class ScalingBaseline {
+
+    private File file;
+    private File output;
+    private boolean update;
+    private Properties stored = new Properties();
+    private Properties measured = new Properties();
+    private List<String> regressions = new ArrayList<String>();
+
+    private ScalingBaseline(File file, File output) throws IOException {
+        this.file = file;
+        this.output = output;
+        update = Boolean.getBoolean("flybase.scaling.update-baseline");
+        if ( !update && file.exists() ) {
+            try ( InputStream in = new FileInputStream(file) ) {
+                stored.load(in);
+            }
+        }
+    }
+
+    /**
+     * Gets the baseline configured by system properties.
+     * 
+     * @return The baseline, or {@code null} if no baseline is configured.
+     * @throws IOException If the baseline file cannot be read.
+     */
+    public static ScalingBaseline fromSystemProperties() throws IOException {
+        String path = System.getProperty("flybase.scaling.baseline", "");
+        String output = System.getProperty("flybase.scaling.baseline-output", "");
+        if ( output.isEmpty() ) {
+            output = "target/scaling-baseline.properties";
+        }
+        return path.isEmpty() ? null : new ScalingBaseline(new File(path), new File(output));
+    }
+
+    /**
+     * Compares a measured value against the stored reference.
+     * 
+     * @param key       The name of the value.
+     * @param value     The measured value (lower is better).
+     * @param tolerance The maximal allowed ratio between the measured and the
+     *                  stored values.
+     */
+    public void check(String key, double value, double tolerance) {
+        measured.setProperty(key, String.format("%.2f", value));
+        if ( update ) {
+            return;
+        }
+
+        String reference = stored.getProperty(key);
+        if ( reference == null ) {
+            regressions.add(String.format("%s: %.2f (no value in %s)", key, value, file));
+        } else {
+            double ref = Double.parseDouble(reference);
+            if ( value > ref * tolerance ) {
+                regressions.add(String.format("%s: %.2f (baseline %.2f, tolerance x%.2f)", key, value, ref,
+                        tolerance));
+            }
+        }
+    }
+
+    /**
+     * Records the measured values into the output file.
+     * 
+     * @return The list of regressions found (always empty when updating the
+     *         baseline).
+     * @throws IOException If the output file cannot be written.
+     */
+    public List<String> finish() throws IOException {
+        // Keep the values recorded by other tests
+        Properties all = new Properties();
+        if ( output.exists() ) {
+            try ( InputStream in = new FileInputStream(output) ) {
+                all.load(in);
+            }
+        } else if ( output.getParentFile() != null ) {
+            output.getParentFile().mkdirs();
+        }
+        all.putAll(measured);
+        try ( OutputStream out = new FileOutputStream(output) ) {
+            all.store(out, "rewrite-def scaling measurements");
+        }
+
+        if ( !regressions.isEmpty() ) {
+            regressions.add(String.format("measured values are in %s", output));
+        }
+        return regressions;
+    }
+}
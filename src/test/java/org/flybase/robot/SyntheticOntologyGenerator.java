@@ -0,0 +1,309 @@
+/*
+ * FlyBase ROBOT Plugin
+ * Copyright © 2023 Damien Goutte-Gattat
+ * 
+ * This file is part of the FlyBase ROBOT Plugin project and distributed
+ * under the terms of the MIT license. See the LICENSE.md file in that
+ * project for the detailed conditions.
+ */
+
+package org.flybase.robot;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.AddImport;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
+
+/**
+ * Generates synthetic ontologies that look like FlyBase ontologies, for
+ * testing how the definition rewriters scale.
+ * <p>
+ * The root ontology contains the classes whose definitions are to be
+ * rewritten. Each class has a label, an OBO ID, and a definition that is
+ * either a DOT definition (in which case the class also has a logical
+ * definition), a SUB definition pointing to a supporting class, or a plain
+ * text definition. Supporting classes (used as genus and fillers in logical
+ * definitions, and as targets of SUB definitions) and object properties are
+ * spread across a chain of imported ontologies. Optionally, logical definitions
+ * using the "expresses" relation may point to FBgn genes that are not described
+ * in the ontology at all; their labels can be written to a separate table
+ * suitable for the {@code --labels-from} option.
+ */
+public class SyntheticOntologyGenerator {
+
+    private static final String BASE = "http://purl.obolibrary.org/obo/fbsynth/";
+
+    // Object properties with an overridden label in the DOT rewriter
+    private static final String[] KNOWN_PROPERTIES = { "BFO_0000050", "BFO_0000051", "RO_0002215",
+            "RO_0002292" };
+    // Object properties whose label must be looked up in the ontology
+    private static final String EXPRESSES = "RO_0002292";
+    private static final String[] OTHER_PROPERTIES = { "FBsynth_0000001", "FBsynth_0000002" };
+
+    private int classes = 1000;
+    private double dotRatio = 0.4;
+    private double subRatio = 0.2;
+    private int expressionDepth = 2;
+    private int importDepth = 2;
+    private double obsoleteRatio = 0.05;
+    private int genes = 0;
+    private long seed = 42;
+
+    /**
+     * Sets the number of classes with a definition to rewrite.
+     * 
+     * @param classes The number of classes in the root ontology.
+     * @return This object, for chaining.
+     */
+    public SyntheticOntologyGenerator setClasses(int classes) {
+        this.classes = classes;
+        return this;
+    }
+
+    /**
+     * Sets the proportion of classes with a DOT definition.
+     * 
+     * @param ratio A value between 0 and 1.
+     * @return This object, for chaining.
+     */
+    public SyntheticOntologyGenerator setDotRatio(double ratio) {
+        dotRatio = ratio;
+        return this;
+    }
+
+    /**
+     * Sets the proportion of classes with a SUB definition.
+     * 
+     * @param ratio A value between 0 and 1.
+     * @return This object, for chaining.
+     */
+    public SyntheticOntologyGenerator setSubRatio(double ratio) {
+        subRatio = ratio;
+        return this;
+    }
+
+    /**
+     * Sets the number of nested existential restrictions in logical definitions.
+     * 
+     * @param depth The nesting depth (at least 1).
+     * @return This object, for chaining.
+     */
+    public SyntheticOntologyGenerator setExpressionDepth(int depth) {
+        expressionDepth = depth;
+        return this;
+    }
+
+    /**
+     * Sets the length of the chain of imported ontologies.
+     * 
+     * @param depth The number of imported ontologies (0 to put everything in the
+     *              root ontology).
+     * @return This object, for chaining.
+     */
+    public SyntheticOntologyGenerator setImportDepth(int depth) {
+        importDepth = depth;
+        return this;
+    }
+
+    /**
+     * Sets the proportion of obsolete classes.
+     * 
+     * @param ratio A value between 0 and 1.
+     * @return This object, for chaining.
+     */
+    public SyntheticOntologyGenerator setObsoleteRatio(double ratio) {
+        obsoleteRatio = ratio;
+        return this;
+    }
+
+    /**
+     * Sets the number of genes that are used in logical definitions but not
+     * described in the ontology.
+     * 
+     * @param genes The number of genes (0 to disable).
+     * @return This object, for chaining.
+     */
+    public SyntheticOntologyGenerator setGenes(int genes) {
+        this.genes = genes;
+        return this;
+    }
+
+    /**
+     * Writes the labels and IDs of the genes to a TSV file.
+     * 
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeGeneLabels(File file) throws IOException {
+        try ( BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8) ) {
+            writer.write("# Synthetic gene labels\n");
+            for ( int i = 0; i < genes; i++ ) {
+                String id = String.format("FBgn%07d", i);
+                writer.write(getGene(i).toString() + "\tsynthetic-gene-" + i + "\t" + id + "\n");
+            }
+        }
+    }
+
+    private IRI getGene(int i) {
+        return IRI.create(String.format("%s%07d", Constants.FBGN_PREFIX, i));
+    }
+
+    /**
+     * Sets the seed of the random generator, so that runs are reproducible.
+     * 
+     * @param seed The seed to use.
+     * @return This object, for chaining.
+     */
+    public SyntheticOntologyGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Generates a new ontology, in its own ontology manager.
+     * 
+     * @return The root ontology.
+     * @throws OWLOntologyCreationException If the ontologies cannot be created.
+     */
+    public OWLOntology generate() throws OWLOntologyCreationException {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        OWLDataFactory factory = manager.getOWLDataFactory();
+        Random random = new Random(seed);
+
+        // The chain of imports: root -> imports[0] -> imports[1] -> ...
+        OWLOntology root = manager.createOntology(IRI.create(BASE + "root.owl"));
+        ArrayList<OWLOntology> imports = new ArrayList<OWLOntology>();
+        OWLOntology previous = root;
+        for ( int i = 0; i < importDepth; i++ ) {
+            IRI iri = IRI.create(BASE + "import-" + i + ".owl");
+            OWLOntology imported = manager.createOntology(iri);
+            manager.applyChange(new AddImport(previous, factory.getOWLImportsDeclaration(iri)));
+            imports.add(imported);
+            previous = imported;
+        }
+
+        List<Set<OWLAxiom>> axioms = new ArrayList<Set<OWLAxiom>>();
+        for ( int i = 0; i <= importDepth; i++ ) {
+            axioms.add(new HashSet<OWLAxiom>());
+        }
+        Set<OWLAxiom> deepest = axioms.get(importDepth);
+
+        // Object properties
+        ArrayList<OWLObjectProperty> properties = new ArrayList<OWLObjectProperty>();
+        for ( String id : KNOWN_PROPERTIES ) {
+            properties.add(factory.getOWLObjectProperty(IRI.create(Constants.OBO_PREFIX + id)));
+        }
+        for ( int i = 0; i < OTHER_PROPERTIES.length; i++ ) {
+            OWLObjectProperty prop = factory.getOWLObjectProperty(
+                    IRI.create(Constants.OBO_PREFIX + OTHER_PROPERTIES[i]));
+            addTerm(factory, deepest, prop, "synthetic_relation_" + i, OTHER_PROPERTIES[i].replace('_', ':'),
+                    null);
+            properties.add(prop);
+        }
+
+        // Supporting classes, spread across the imports
+        int nSupport = Math.max(10, classes / 10);
+        ArrayList<OWLClass> support = new ArrayList<OWLClass>(nSupport);
+        for ( int i = 0; i < nSupport; i++ ) {
+            String id = String.format("FBsynth_%07d", i + 10);
+            OWLClass c = factory.getOWLClass(IRI.create(Constants.OBO_PREFIX + id));
+            Set<OWLAxiom> target = importDepth > 0 ? axioms.get(1 + i % importDepth) : axioms.get(0);
+            addTerm(factory, target, c, "supporting structure " + i, id.replace('_', ':'),
+                    "A supporting structure used in synthetic definitions, number " + i + ".");
+            support.add(c);
+        }
+
+        // Classes to rewrite, in the root ontology
+        Set<OWLAxiom> rootAxioms = axioms.get(0);
+        OWLAnnotationProperty deprecated = factory
+                .getOWLAnnotationProperty(OWLRDFVocabulary.OWL_DEPRECATED.getIRI());
+        for ( int i = 0; i < classes; i++ ) {
+            String id = String.format("FBbt_%08d", i);
+            OWLClass c = factory.getOWLClass(IRI.create(Constants.OBO_PREFIX + id));
+            double r = random.nextDouble();
+            String definition;
+            if ( r < dotRatio ) {
+                definition = ".";
+                OWLClassExpression genus = support.get(random.nextInt(nSupport));
+                OWLClassExpression differentia = getRestriction(factory, random, properties, support,
+                        Math.max(1, expressionDepth));
+                rootAxioms.add(factory.getOWLEquivalentClassesAxiom(c,
+                        factory.getOWLObjectIntersectionOf(genus, differentia)));
+            } else if ( r < dotRatio + subRatio ) {
+                String target = support.get(random.nextInt(nSupport)).getIRI().getShortForm();
+                definition = "$sub_" + target.replace('_', ':');
+            } else {
+                definition = "Synthetic term number " + i + ".";
+            }
+            addTerm(factory, rootAxioms, c, "synthetic term " + i, id.replace('_', ':'), definition);
+
+            if ( random.nextDouble() < obsoleteRatio ) {
+                rootAxioms.add(factory.getOWLAnnotationAssertionAxiom(deprecated, c.getIRI(),
+                        factory.getOWLLiteral(true)));
+            }
+        }
+
+        manager.addAxioms(root, rootAxioms);
+        for ( int i = 0; i < importDepth; i++ ) {
+            manager.addAxioms(imports.get(i), axioms.get(i + 1));
+        }
+
+        return root;
+    }
+
+    /*
+     * Build a chain of nested existential restrictions of the given depth.
+     */
+    private OWLClassExpression getRestriction(OWLDataFactory factory, Random random,
+            List<OWLObjectProperty> properties, List<OWLClass> support, int depth) {
+        OWLObjectProperty prop = properties.get(random.nextInt(properties.size()));
+        OWLClass filler;
+        if ( genes > 0 && prop.getIRI().getShortForm().equals(EXPRESSES) ) {
+            filler = factory.getOWLClass(getGene(random.nextInt(genes)));
+        } else {
+            filler = support.get(random.nextInt(support.size()));
+        }
+        if ( depth == 1 ) {
+            return factory.getOWLObjectSomeValuesFrom(prop, filler);
+        }
+        return factory.getOWLObjectSomeValuesFrom(prop, factory.getOWLObjectIntersectionOf(filler,
+                getRestriction(factory, random, properties, support, depth - 1)));
+    }
+
+    /*
+     * Add the declaration, label, ID and (optional) definition of a term.
+     */
+    private void addTerm(OWLDataFactory factory, Set<OWLAxiom> axioms, OWLEntity entity, String label, String id,
+            String definition) {
+        axioms.add(factory.getOWLDeclarationAxiom(entity));
+        axioms.add(factory.getOWLAnnotationAssertionAxiom(factory.getRDFSLabel(), entity.getIRI(),
+                factory.getOWLLiteral(label)));
+        axioms.add(factory.getOWLAnnotationAssertionAxiom(Constants.OBOID_PROPERTY, entity.getIRI(),
+                factory.getOWLLiteral(id)));
+        if ( definition != null ) {
+            axioms.add(factory.getOWLAnnotationAssertionAxiom(Constants.DEFINITION_PROPERTY, entity.getIRI(),
+                    factory.getOWLLiteral(definition)));
+        }
+    }
+}